@@ -0,0 +1,245 @@
+package com.anirudhrb.acrylicmaterial;
+
+import android.graphics.*;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Objects;
+
+/**
+ * <p>A drawable that renders the acrylic material effect: the blurred
+ * background, the tint and the noise texture.</p>
+ *
+ * <p>On API 28 and above all three layers are drawn by a single {@code drawRect}
+ * with one {@link Paint}, whose shader composes the blurred background, a solid
+ * tint and the noise, in that order. The repeating noise shader is not copied:
+ * all instances using the same noise configuration share one.</p>
+ *
+ * <p>Below API 28 hardware acceleration cannot draw a {@link ComposeShader}
+ * that nests another one or combines two bitmap shaders. There the background
+ * is drawn with the tint folded in as a color filter, and the noise is drawn on
+ * top with a second {@code drawRect}.</p>
+ *
+ * <p>Unlike a {@code LayerDrawable}, the tint color and the opacity can be
+ * changed at runtime without generating the drawable again.</p>
+ */
+public class AcrylicDrawable extends Drawable {
+    private static final boolean COMPOSE_SHADERS = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P;
+
+    @NonNull
+    private final Bitmap mBlurred;
+    @NonNull
+    private final BitmapShader mBlurShader;
+    @Nullable
+    private final BitmapShader mNoiseShader;
+    @NonNull
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG);
+    /**
+     * Only used below API 28, see the class documentation.
+     */
+    @Nullable
+    private final Paint mNoisePaint;
+    /**
+     * Only used below API 28 when a color filter is set.
+     */
+    @NonNull
+    private final Paint mTintPaint = new Paint();
+    @NonNull
+    private final Matrix mMatrix = new Matrix();
+    @NonNull
+    private final RectF mBitmapRect;
+    @NonNull
+    private final RectF mBoundsRect = new RectF();
+    private final int mIntrinsicWidth;
+    private final int mIntrinsicHeight;
+
+    @ColorInt
+    private int mTintColor;
+    private int mAlpha = 0xff;
+    @Nullable
+    private ColorFilter mColorFilter;
+
+    /**
+     * @param blurred         the blurred background
+     * @param intrinsicWidth  intrinsic width; may differ from the bitmap's for a preview
+     * @param intrinsicHeight intrinsic height; may differ from the bitmap's for a preview
+     * @param tintColor       tint color; fully transparent for no tint
+     * @param noiseShader     repeating noise shader
+     */
+    AcrylicDrawable(@NonNull Bitmap blurred,
+                    int intrinsicWidth,
+                    int intrinsicHeight,
+                    @ColorInt int tintColor,
+                    @Nullable BitmapShader noiseShader) {
+        Objects.requireNonNull(blurred);
+
+        mBlurred = blurred;
+        mBlurShader = new BitmapShader(blurred, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        mNoiseShader = noiseShader;
+        mBitmapRect = new RectF(0, 0, blurred.getWidth(), blurred.getHeight());
+        mIntrinsicWidth = intrinsicWidth;
+        mIntrinsicHeight = intrinsicHeight;
+
+        if (!COMPOSE_SHADERS && noiseShader != null) {
+            mNoisePaint = new Paint();
+            mNoisePaint.setShader(noiseShader);
+        } else {
+            mNoisePaint = null;
+        }
+
+        mTintColor = tintColor;
+        updatePaints();
+    }
+
+    /**
+     * @return the blurred background bitmap
+     */
+    @NonNull
+    public Bitmap getBlurredBitmap() {
+        return mBlurred;
+    }
+
+    /**
+     * @return the current tint color
+     */
+    @ColorInt
+    public int getTintColor() {
+        return mTintColor;
+    }
+
+    /**
+     * Changes the tint color. Do not set 100% opacity as it will completely
+     * obscure the blurred background.
+     *
+     * @param argb tint color (as int); fully transparent for no tint
+     */
+    public void setTintColor(@ColorInt int argb) {
+        if (mTintColor != argb) {
+            mTintColor = argb;
+            updatePaints();
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        final Rect bounds = getBounds();
+
+        canvas.drawRect(bounds, mPaint);
+
+        if (COMPOSE_SHADERS) {
+            return;
+        }
+
+        // The tint is folded into the paint unless a color filter occupies
+        // it, in which case it is drawn (and filtered) separately.
+        if (mColorFilter != null && Color.alpha(mTintColor) != 0) {
+            canvas.drawRect(bounds, mTintPaint);
+        }
+
+        if (mNoisePaint != null) {
+            canvas.drawRect(bounds, mNoisePaint);
+        }
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        mBoundsRect.set(bounds);
+        mMatrix.setRectToRect(mBitmapRect, mBoundsRect, Matrix.ScaleToFit.FILL);
+        mBlurShader.setLocalMatrix(mMatrix);
+        updatePaints();
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return mIntrinsicWidth;
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return mIntrinsicHeight;
+    }
+
+    @Override
+    public int getAlpha() {
+        return mAlpha;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (mAlpha != alpha) {
+            mAlpha = alpha;
+            mPaint.setAlpha(alpha);
+            mTintPaint.setAlpha(Color.alpha(mTintColor) * alpha / 0xff);
+            if (mNoisePaint != null) {
+                mNoisePaint.setAlpha(alpha);
+            }
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * Sets a color filter that is applied to the drawable.
+     *
+     * @param colorFilter the color filter, or {@code null} to remove it
+     */
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mColorFilter = colorFilter;
+        updatePaints();
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    private void updatePaints() {
+        if (COMPOSE_SHADERS) {
+            mPaint.setShader(composeShader());
+            mPaint.setColorFilter(mColorFilter);
+            return;
+        }
+
+        mPaint.setShader(mBlurShader);
+        if (mColorFilter != null) {
+            mPaint.setColorFilter(mColorFilter);
+            mTintPaint.setColor(mTintColor);
+            mTintPaint.setAlpha(Color.alpha(mTintColor) * mAlpha / 0xff);
+            mTintPaint.setColorFilter(mColorFilter);
+        } else if (Color.alpha(mTintColor) != 0) {
+            // SRC_ATOP composites the tint over the background, keeping its alpha
+            mPaint.setColorFilter(new PorterDuffColorFilter(mTintColor, PorterDuff.Mode.SRC_ATOP));
+        } else {
+            mPaint.setColorFilter(null);
+        }
+
+        if (mNoisePaint != null) {
+            mNoisePaint.setColorFilter(mColorFilter);
+        }
+    }
+
+    /**
+     * Composes the blurred background, the tint and the noise, bottom to top.
+     */
+    @NonNull
+    private Shader composeShader() {
+        Shader shader = mBlurShader;
+
+        if (Color.alpha(mTintColor) != 0) {
+            // A gradient between two equal colors is a solid color shader
+            Shader tint = new LinearGradient(0, 0, 0, 1, mTintColor, mTintColor, Shader.TileMode.CLAMP);
+            shader = new ComposeShader(shader, tint, PorterDuff.Mode.SRC_OVER);
+        }
+
+        if (mNoiseShader != null) {
+            shader = new ComposeShader(shader, mNoiseShader, PorterDuff.Mode.SRC_OVER);
+        }
+
+        return shader;
+    }
+}
@@ -1,11 +1,9 @@
 package com.anirudhrb.acrylicmaterial;
 
 import android.content.Context;
-import android.graphics.*;
-import android.graphics.drawable.BitmapDrawable;
+import android.graphics.BitmapShader;
+import android.graphics.Color;
 import android.graphics.drawable.Drawable;
-import android.graphics.drawable.GradientDrawable;
-import android.graphics.drawable.LayerDrawable;
 import android.support.annotation.ColorInt;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
@@ -13,8 +11,6 @@ import android.support.annotation.Nullable;
 import android.support.v4.content.ContextCompat;
 import android.util.Log;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 
 /**
@@ -33,18 +29,50 @@ import java.util.Objects;
  *
  * <p>This will generate an acrylic material background based on the given back-
  * ground image ({@code R.drawable.background_image}) using the default options.</p>
+ *
+ * <p>To reuse a configuration for many backgrounds, or from many threads,
+ * create an immutable {@link AcrylicSpec} with {@link #toSpec()}.</p>
  */
 public class AcrylicMaterial {
     private static final String TAG = "AcrylicMaterial";
 
+    /**
+     * Noise intensity used by {@link #useDefaults()}.
+     */
+    private static final float DEFAULT_NOISE_INTENSITY = 0.2f;
+
+    /**
+     * Receives the drawables generated by {@link #generate(Callback)}.
+     */
+    public interface Callback {
+        /**
+         * Called with a low resolution preview of the acrylic drawable.
+         *
+         * @param preview the preview drawable
+         */
+        void onPreview(@NonNull AcrylicDrawable preview);
+
+        /**
+         * Called with the full quality acrylic drawable.
+         *
+         * @param result the resultant drawable
+         */
+        void onResult(@NonNull AcrylicDrawable result);
+    }
+
     @NonNull
     private Context mContext;
     @Nullable
     private Drawable mBackground;
     @Nullable
-    private Drawable mNoiseLayer;
+    private BitmapShader mNoiseShader;
+    /**
+     * Identifies {@link #mNoiseShader} in {@link AcrylicSpec#getCacheKey()}.
+     */
+    @Nullable
+    private String mNoiseKey;
     @Nullable
-    private Drawable mTintLayer;
+    private Integer mTintColor;
     @Nullable
     private IBlurAlgorithm mBlurAlgorithm;
     private float mSaturation = 1f;
@@ -148,7 +176,7 @@ public class AcrylicMaterial {
      * <p>
      * More about Stack Blur: http://www.quasimondo.com/StackBlurForCanvas/StackBlurDemo.html
      * <p>
-     * {@code radius} must be strictly greater than 0.
+     * Allowed range of {@code radius} is [1, 1000].
      *
      * @param radius blur radius
      * @return current {@code AcrylicMaterial} instance
@@ -160,6 +188,48 @@ public class AcrylicMaterial {
         return this;
     }
 
+    /**
+     * Configures the current {@code AcrylicMaterial} instance to use a variable
+     * radius blur, e.g. a blur that strengthens towards an edge:
+     * <pre>
+     * variableBlur(80, VariableBlur.linearGradient(0f, 0f, 0f, 1f))
+     * </pre>
+     * Its cost does not depend on the radius.
+     * <p>
+     * {@code radius} must be strictly greater than 0.
+     *
+     * @param radius         maximum blur radius
+     * @param radiusFunction gives the fraction of {@code radius} to use at each pixel
+     * @return current {@code AcrylicMaterial} instance
+     * @see VariableBlur
+     */
+    @SuppressWarnings("unused")
+    public AcrylicMaterial variableBlur(float radius, @NonNull VariableBlur.RadiusFunction radiusFunction) {
+        mBlurAlgorithm = new VariableBlur(radiusFunction);
+        mBlurRadius = radius;
+        return this;
+    }
+
+    /**
+     * Same as {@link #variableBlur(float, VariableBlur.RadiusFunction)} with
+     * the given number of box blur passes instead of the default three.
+     *
+     * @param radius         maximum blur radius
+     * @param radiusFunction gives the fraction of {@code radius} to use at each pixel
+     * @param passes         number of box blur passes, at least 1; more passes
+     *                       are smoother but each costs a full scan of the image
+     * @return current {@code AcrylicMaterial} instance
+     * @see VariableBlur
+     */
+    @SuppressWarnings("unused")
+    public AcrylicMaterial variableBlur(float radius,
+                                       @NonNull VariableBlur.RadiusFunction radiusFunction,
+                                       int passes) {
+        mBlurAlgorithm = new VariableBlur(radiusFunction, passes);
+        mBlurRadius = radius;
+        return this;
+    }
+
     /**
      * Sets a noise layer. The noise layer is the topmost layer.
      *
@@ -168,15 +238,40 @@ public class AcrylicMaterial {
      */
     @SuppressWarnings("WeakerAccess")
     public AcrylicMaterial noise(@DrawableRes int res) {
-        mNoiseLayer = ContextCompat.getDrawable(mContext, res);
-        if (mNoiseLayer == null) {
+        Drawable noiseLayer = ContextCompat.getDrawable(mContext, res);
+        if (noiseLayer == null) {
             Log.w(TAG, "Unable to set noise layer drawable. " +
                     "Couldn't find the drawable with the given resource id");
+            mNoiseShader = null;
+            mNoiseKey = null;
+        } else {
+            mNoiseShader = NoiseTexture.repeating(Utils.bitmapFromDrawable(noiseLayer));
+            mNoiseKey = "res:" + Integer.toHexString(res);
         }
 
         return this;
     }
 
+    /**
+     * Sets a generated noise layer. The noise layer is the topmost layer.
+     * <p>
+     * The texture is generated at the screen density once per process for
+     * each combination of parameters and shared by all generated drawables,
+     * so no image has to be decoded.
+     *
+     * @param intensity  strength of the noise, in [0, 1]. The default is
+     *                   0.2.
+     * @param monochrome whether the noise is gray (like the default) or colored
+     * @return current {@code AcrylicMaterial} instance
+     * @throws IllegalArgumentException if {@code intensity} is not in [0, 1]
+     */
+    @SuppressWarnings("WeakerAccess")
+    public AcrylicMaterial noise(float intensity, boolean monochrome) {
+        mNoiseShader = NoiseTexture.shader(mContext.getResources(), intensity, monochrome);
+        mNoiseKey = NoiseTexture.cacheKey(intensity, monochrome);
+        return this;
+    }
+
 
     /**
      * Sets a tint layer with the given color. The tint layer is just below
@@ -188,12 +283,7 @@ public class AcrylicMaterial {
      */
     @SuppressWarnings("unused")
     public AcrylicMaterial tintColor(@ColorInt int argb) {
-        GradientDrawable tintLayer = new GradientDrawable();
-        tintLayer.setShape(GradientDrawable.RECTANGLE);
-        tintLayer.setColor(argb);
-
-        mTintLayer = tintLayer;
-
+        mTintColor = argb;
         return this;
     }
 
@@ -217,7 +307,7 @@ public class AcrylicMaterial {
      * 2. {@code stackBlur(80)}
      * 3. {@code saturation(2f)}
      * 4. tint color #ccffffff
-     * 5. noise texture
+     * 5. monochrome generated noise, see {@link #noise(float, boolean)}
      *
      * @return current {@code AcrylicMaterial} instance
      */
@@ -226,72 +316,93 @@ public class AcrylicMaterial {
                 .stackBlur(80)
                 .saturation(2f)
                 .tintColor(Color.parseColor("#CCffffff"))
-                .noise(R.drawable.noise_layer);
+                .noise(DEFAULT_NOISE_INTENSITY, true);
     }
 
     /**
-     * Generates a drawable with the acrylic material effect based on the
-     * configuration set using the other methods in this class.
+     * Creates an immutable {@link AcrylicSpec} from the current configuration.
+     * Resources are resolved once and the spec can be shared across threads;
+     * the background, if any, is not part of the spec.
      * <p>
-     * This drawable can be used a background wherever the acrylic material
-     * effect is needed.
+     * To keep the spec in a static field, create it from the application
+     * context.
      *
-     * @return the resultant drawable
+     * @return the spec
      */
-    public Drawable generate() {
-        if (mBackground == null) {
-            throw new IllegalStateException("No background set.");
-        }
-
+    public AcrylicSpec toSpec() {
         if (mBlurAlgorithm == null) {
             throw new IllegalStateException("No blur algorithm specified.");
         }
 
-        long start = System.currentTimeMillis();
-
-        final Bitmap scaledBackground = scaleBitmap(Utils.bitmapFromDrawable(mBackground), mScaleFactor);
-        final Bitmap saturationBoost = Utils.saturateBitmap(scaledBackground, mSaturation);
-        final Bitmap blurred = mBlurAlgorithm.applyOn(saturationBoost, mBlurRadius);
-
-        if (blurred == null) {
-            Log.wtf(TAG, "Blur failed!");
-            throw new IllegalArgumentException("Failed to apply blur. " +
-                    "Check if the given radius was out of the range of permitted values!");
-        }
-
-        final Drawable blurLayer = new BitmapDrawable(mContext.getResources(), blurred);
+        return new AcrylicSpec(mContext.getResources(), mBlurAlgorithm, mBlurRadius,
+                mScaleFactor, mSaturation, mTintColor, mNoiseShader, mNoiseKey);
+    }
 
-        final List<Drawable> layers = new ArrayList<>();
-        layers.add(blurLayer);
+    /**
+     * Generates a drawable with the acrylic material effect based on the
+     * configuration set using the other methods in this class.
+     * <p>
+     * This drawable can be used a background wherever the acrylic material
+     * effect is needed.
+     *
+     * @return the resultant drawable
+     */
+    public AcrylicDrawable generate() {
+        return toSpec().generate(requireBackground());
+    }
 
-        // add tint layer if configured
-        if (mTintLayer != null) {
-            layers.add(mTintLayer);
-        }
+    /**
+     * Generates the acrylic drawable progressively: a low resolution preview
+     * is delivered first, followed by the full quality drawable.
+     *
+     * @param callback receives the preview and the result
+     * @see AcrylicSpec#generate(android.graphics.Bitmap, Callback)
+     */
+    public void generate(@NonNull Callback callback) {
+        toSpec().generate(requireBackground(), callback);
+    }
 
-        // add noise layer if configured
-        if (mNoiseLayer != null) {
-            layers.add(mNoiseLayer);
+    @NonNull
+    private Drawable requireBackground() {
+        if (mBackground == null) {
+            throw new IllegalStateException("No background set.");
         }
 
-        LayerDrawable result = new LayerDrawable(layers.toArray(new Drawable[]{}));
+        return mBackground;
+    }
 
-        Log.i(TAG, String.format("generate() took %d ms", System.currentTimeMillis() - start));
-        return result;
+    /**
+     * Performs the one-time costs of the acrylic pipeline for the current
+     * configuration on a background thread. No background is required. Call
+     * this early, e.g. from {@code Application.onCreate()}.
+     *
+     * @return the started warm-up thread
+     * @see AcrylicSpec#prewarm()
+     */
+    @SuppressWarnings("UnusedReturnValue")
+    public Thread prewarm() {
+        return toSpec().prewarm();
     }
 
     /**
-     * Creates a new bitmap that is a scaled version of {@code input}.
-     * The size of the scaled bitmap will be {@code input.getWidth() * scale} by
-     * {@code input.getHeight() * scale} rounded to the closest int.
+     * Prewarms the pipeline for the default configuration (see
+     * {@link #useDefaults()}). The noise texture is generated on the
+     * warm-up thread as well.
      *
-     * @param input the bitmap to scale
-     * @param scale the factor by which to scale
-     * @return scaled bitmap
+     * @param context context
+     * @return the started warm-up thread
+     * @see #prewarm()
      */
-    private Bitmap scaleBitmap(Bitmap input, float scale) {
-        int width = Math.round(input.getWidth() * scale);
-        int height = Math.round(input.getHeight() * scale);
-        return Bitmap.createScaledBitmap(input, width, height, false);
+    @SuppressWarnings("UnusedReturnValue")
+    public static Thread prewarm(@NonNull final Context context) {
+        Objects.requireNonNull(context);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                with(context.getApplicationContext()).useDefaults().toSpec().warmUp();
+            }
+        }, "AcrylicMaterial-prewarm");
+        thread.start();
+        return thread;
     }
 }
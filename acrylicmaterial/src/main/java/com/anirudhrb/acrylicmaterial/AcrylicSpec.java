@@ -0,0 +1,333 @@
+package com.anirudhrb.acrylicmaterial;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.os.Process;
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * <p>An immutable acrylic material configuration. All resources are resolved
+ * when the spec is created, so generating a drawable only costs the blur itself.
+ * A spec can be kept in a static field and used concurrently from any number
+ * of threads to generate drawables for different backgrounds.</p>
+ *
+ * <p>Example usage:</p>
+ *
+ * <pre>
+ * AcrylicSpec spec = AcrylicMaterial
+ *     .with(context.getApplicationContext())
+ *     .useDefaults()
+ *     .toSpec();
+ *
+ * Drawable d = spec.generate(background);
+ * </pre>
+ */
+public final class AcrylicSpec {
+    private static final String TAG = "AcrylicSpec";
+
+    /**
+     * Side (in px) of the bitmap blurred by {@link #prewarm()}. Large enough to
+     * get the blur loops compiled, small enough to finish in a few ms.
+     */
+    private static final int PREWARM_BITMAP_SIZE = 64;
+
+    /**
+     * Width (in px) of the background copy blurred for the preview delivered
+     * by {@link #generate(Bitmap, AcrylicMaterial.Callback)}.
+     */
+    private static final int PREVIEW_WIDTH = 32;
+
+    @NonNull
+    private final Resources mResources;
+    @NonNull
+    private final IBlurAlgorithm mBlurAlgorithm;
+    private final float mBlurRadius;
+    private final float mScaleFactor;
+    private final float mSaturation;
+    @ColorInt
+    private final int mTintColor;
+    /**
+     * Repeating noise shader, shared with the builder and, for generated
+     * noise, with every spec using the same noise configuration.
+     */
+    @Nullable
+    private final BitmapShader mNoiseShader;
+    /**
+     * {@code null} if the blur algorithm cannot be keyed.
+     */
+    @Nullable
+    private final String mCacheKey;
+
+    AcrylicSpec(@NonNull Resources resources,
+                @NonNull IBlurAlgorithm blurAlgorithm,
+                float blurRadius,
+                float scaleFactor,
+                float saturation,
+                @Nullable Integer tintColor,
+                @Nullable BitmapShader noiseShader,
+                @Nullable String noiseKey) {
+        mResources = resources;
+        mBlurAlgorithm = blurAlgorithm;
+        mBlurRadius = blurRadius;
+        mScaleFactor = scaleFactor;
+        mSaturation = saturation;
+        mTintColor = tintColor != null ? tintColor : Color.TRANSPARENT;
+        mNoiseShader = noiseShader;
+        final String algorithmKey = blurAlgorithm.cacheKey();
+        mCacheKey = algorithmKey == null ? null : String.format(Locale.US,
+                "%s:%s|scale:%s|sat:%s|tint:%s|noise:%s|dpi:%d",
+                algorithmKey,
+                blurRadius,
+                scaleFactor,
+                saturation,
+                tintColor != null ? Integer.toHexString(tintColor) : "none",
+                noiseShader != null ? noiseKey : "none",
+                resources.getDisplayMetrics().densityDpi);
+    }
+
+    /**
+     * Returns a key that identifies this configuration. Two specs with the
+     * same key generate the same drawable for the same background, so the key
+     * can be combined with a background identifier to cache results.
+     * <p>
+     * The key is {@code null} if the blur algorithm does not provide one
+     * (see {@link IBlurAlgorithm#cacheKey()}); results of such a spec should
+     * not be cached.
+     *
+     * @return the cache key, or {@code null}
+     */
+    @Nullable
+    public String getCacheKey() {
+        return mCacheKey;
+    }
+
+    /**
+     * Generates a drawable with the acrylic material effect for the given
+     * background.
+     * <p>
+     * Non-bitmap drawables are drawn to a bitmap first, which is not safe to
+     * do concurrently with the same drawable instance.
+     *
+     * @param background the background to apply the effect on
+     * @return the resultant drawable
+     */
+    @NonNull
+    public AcrylicDrawable generate(@NonNull Drawable background) {
+        Objects.requireNonNull(background);
+        return generate(Utils.bitmapFromDrawable(background));
+    }
+
+    /**
+     * Generates a drawable with the acrylic material effect for the given
+     * background.
+     *
+     * @param background the background to apply the effect on
+     * @return the resultant drawable
+     */
+    @NonNull
+    public AcrylicDrawable generate(@NonNull Bitmap background) {
+        Objects.requireNonNull(background);
+
+        long start = System.currentTimeMillis();
+
+        final AcrylicDrawable result = compose(blur(background, mScaleFactor, mBlurRadius, false), background);
+
+        Log.i(TAG, String.format("generate() took %d ms", System.currentTimeMillis() - start));
+        return result;
+    }
+
+    /**
+     * Generates the acrylic drawable progressively.
+     *
+     * @param background the background to apply the effect on
+     * @param callback   receives the preview and the result
+     * @see #generate(Bitmap, AcrylicMaterial.Callback)
+     */
+    public void generate(@NonNull Drawable background, @NonNull AcrylicMaterial.Callback callback) {
+        Objects.requireNonNull(background);
+        generate(Utils.bitmapFromDrawable(background), callback);
+    }
+
+    /**
+     * Generates the acrylic drawable progressively. First a preview is
+     * generated from a tiny ({@value #PREVIEW_WIDTH}px wide) copy of the
+     * background and delivered through
+     * {@link AcrylicMaterial.Callback#onPreview(AcrylicDrawable)}; then the full
+     * quality drawable (same as {@link #generate(Bitmap)}) is delivered through
+     * {@link AcrylicMaterial.Callback#onResult(AcrylicDrawable)}.
+     * <p>
+     * The preview costs a few ms regardless of the size of the background,
+     * so it can be shown almost immediately and swapped for the result once
+     * that is ready. The preview has the same intrinsic size as the result.
+     * <p>
+     * Both callbacks are invoked on the calling thread, which should be a
+     * background thread.
+     *
+     * @param background the background to apply the effect on
+     * @param callback   receives the preview and the result
+     */
+    public void generate(@NonNull Bitmap background, @NonNull AcrylicMaterial.Callback callback) {
+        Objects.requireNonNull(background);
+        Objects.requireNonNull(callback);
+
+        long start = System.currentTimeMillis();
+
+        // The blur radius is in px of the scaled background, so it must be
+        // scaled along with the preview to give a similar looking result.
+        final float previewScale = Math.min(mScaleFactor, PREVIEW_WIDTH / (float) background.getWidth());
+        final float previewRadius = mScaleFactor > 0
+                ? Math.max(1f, mBlurRadius * previewScale / mScaleFactor)
+                : mBlurRadius;
+        callback.onPreview(compose(blur(background, previewScale, previewRadius, true), background));
+
+        Log.i(TAG, String.format("preview took %d ms", System.currentTimeMillis() - start));
+
+        callback.onResult(compose(blur(background, mScaleFactor, mBlurRadius, false), background));
+
+        Log.i(TAG, String.format("generate(Callback) took %d ms", System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Performs the one-time costs of the acrylic pipeline for this spec on a
+     * background thread: the shared blur state (GaussianBlur's RenderScript
+     * context) is created and a small warm-up blur is run so that the blur
+     * code is compiled before the first visible {@code generate()}.
+     *
+     * @return the started warm-up thread
+     */
+    @SuppressWarnings("UnusedReturnValue")
+    public Thread prewarm() {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                warmUp();
+            }
+        }, "AcrylicMaterial-prewarm");
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Runs the pipeline once on a small dummy bitmap on the calling thread.
+     */
+    void warmUp() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        long start = System.currentTimeMillis();
+
+        Bitmap input = Bitmap.createBitmap(PREWARM_BITMAP_SIZE, PREWARM_BITMAP_SIZE,
+                Bitmap.Config.ARGB_8888);
+        input.eraseColor(Color.GRAY);
+        blur(input, mScaleFactor, mBlurRadius, false);
+
+        Log.i(TAG, String.format("prewarm() took %d ms", System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Scales, saturates and blurs {@code source}.
+     *
+     * @param source the background bitmap
+     * @param scale  the factor by which to scale {@code source} before blurring
+     * @param radius blur radius
+     * @param filter whether to filter while scaling
+     * @return the blurred bitmap
+     */
+    @NonNull
+    private Bitmap blur(Bitmap source, float scale, float radius, boolean filter) {
+        final Bitmap scaledBackground = scaleBitmap(source, scale, filter);
+        final Bitmap saturationBoost = Utils.saturateBitmap(scaledBackground, mSaturation);
+        final Bitmap blurred = mBlurAlgorithm.applyOn(saturationBoost, radius);
+
+        if (blurred == null) {
+            Log.wtf(TAG, "Blur failed!");
+            throw new IllegalArgumentException("Failed to apply blur. " +
+                    "Check if the given radius was out of the range of permitted values!");
+        }
+
+        return blurred;
+    }
+
+    /**
+     * Creates the acrylic drawable for {@code blurred}. Its intrinsic size is
+     * always that of the full quality result, so that a preview can be
+     * swapped for the result without the size changing.
+     *
+     * @param blurred    the blurred background, possibly a preview
+     * @param background the original background
+     * @return the acrylic drawable
+     */
+    private AcrylicDrawable compose(Bitmap blurred, Bitmap background) {
+        final int width = scaledLength(background.getWidth(), mScaleFactor);
+        final int height = scaledLength(background.getHeight(), mScaleFactor);
+        return new AcrylicDrawable(blurred,
+                toDisplayDensity(width, blurred), toDisplayDensity(height, blurred),
+                mTintColor, mNoiseShader);
+    }
+
+    /**
+     * Converts a length in px of {@code bitmap} to px of the display, the
+     * same way as {@link Bitmap#getScaledWidth(android.util.DisplayMetrics)}.
+     */
+    private int toDisplayDensity(int length, Bitmap bitmap) {
+        final int density = bitmap.getDensity();
+        final int target = mResources.getDisplayMetrics().densityDpi;
+        if (density == Bitmap.DENSITY_NONE || density == target) {
+            return length;
+        }
+
+        return (length * target + (density >> 1)) / density;
+    }
+
+    /**
+     * Creates a new bitmap that is a scaled version of {@code input}.
+     * The size of the scaled bitmap will be {@code input.getWidth() * scale} by
+     * {@code input.getHeight() * scale} rounded to the closest int.
+     *
+     * @param input the bitmap to scale
+     * @param scale the factor by which to scale
+     * @param filter whether to filter while scaling
+     * @return scaled bitmap
+     */
+    private static Bitmap scaleBitmap(Bitmap input, float scale, boolean filter) {
+        int width = scaledLength(input.getWidth(), scale);
+        int height = scaledLength(input.getHeight(), scale);
+        return Bitmap.createScaledBitmap(input, width, height, filter);
+    }
+
+    private static int scaledLength(int length, float scale) {
+        return Math.max(1, Math.round(length * scale));
+    }
+
+    /**
+     * Specs are equal if they have the same non-null cache key. A spec without
+     * a cache key is only equal to itself.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        return mCacheKey != null
+                && o instanceof AcrylicSpec
+                && mCacheKey.equals(((AcrylicSpec) o).mCacheKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return mCacheKey != null ? mCacheKey.hashCode() : super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "AcrylicSpec{" + (mCacheKey != null ? mCacheKey : "uncacheable") + "}";
+    }
+}
@@ -12,22 +12,30 @@ import android.support.annotation.Nullable;
 import java.util.Objects;
 
 class GaussianBlur implements IBlurAlgorithm {
+    /**
+     * Creating a RenderScript context is expensive, so a single one bound to
+     * the application context is shared by all instances.
+     */
+    @Nullable
+    private static RenderScript sRenderScript;
+
     @NonNull
     private final Context mContext;
 
     /**
-     * @param context context for RenderScript instance
+     * @param context context for RenderScript instance; only its application
+     *                context is retained so that instances can outlive it
      */
     GaussianBlur(@NonNull Context context) {
         Objects.requireNonNull(context);
-        mContext = context;
+        mContext = context.getApplicationContext();
     }
 
     @Nullable
     public Bitmap applyOn(@NonNull Bitmap input, float radius) {
         Bitmap blurred = Bitmap.createBitmap(input);
 
-        RenderScript rs = RenderScript.create(mContext);
+        RenderScript rs = renderScript(mContext);
         ScriptIntrinsicBlur blurScript = ScriptIntrinsicBlur.create(rs, Element.U8_4(rs));
 
         Allocation tmpIn = Allocation.createFromBitmap(rs, input);
@@ -38,6 +46,31 @@ class GaussianBlur implements IBlurAlgorithm {
         blurScript.forEach(tmpOut);
         tmpOut.copyTo(blurred);
 
+        tmpIn.destroy();
+        tmpOut.destroy();
+        blurScript.destroy();
+
         return blurred;
     }
+
+    @Override
+    @NonNull
+    public String cacheKey() {
+        return "gaussian";
+    }
+
+    /**
+     * Returns the shared RenderScript context, creating it on first use.
+     *
+     * @param context application context
+     * @return the shared RenderScript context
+     */
+    @NonNull
+    static synchronized RenderScript renderScript(@NonNull Context context) {
+        if (sRenderScript == null) {
+            sRenderScript = RenderScript.create(context);
+        }
+
+        return sRenderScript;
+    }
 }
@@ -16,4 +16,15 @@ public interface IBlurAlgorithm {
      */
     @Nullable
     Bitmap applyOn(@NonNull Bitmap input, float radius);
+
+    /**
+     * Returns a key that identifies this algorithm and its configuration
+     * (excluding the radius). Instances that blur identically must return
+     * equal keys; it is used by {@link AcrylicSpec#getCacheKey()}.
+     *
+     * @return the key, or {@code null} if results of this algorithm must not
+     * be cached
+     */
+    @Nullable
+    String cacheKey();
 }
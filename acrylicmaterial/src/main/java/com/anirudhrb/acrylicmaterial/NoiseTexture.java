@@ -0,0 +1,136 @@
+package com.anirudhrb.acrylicmaterial;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Color;
+import android.graphics.Shader;
+import android.support.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Procedurally generated noise texture. Each pixel is independent, so the
+ * texture tiles seamlessly. Textures are generated once per process for each
+ * configuration, and their repeating shaders are shared by all acrylic
+ * drawables.
+ */
+class NoiseTexture {
+    /**
+     * Side of the texture in dp (one noise grain per dp).
+     */
+    private static final int SIZE_DP = 64;
+
+    /**
+     * Opacity of every noise pixel; the intensity only changes how far the
+     * pixels deviate from mid gray. Matches the former {@code noise.png}.
+     */
+    private static final int ALPHA = 0x40;
+
+    /**
+     * Fixed seed so that the texture is the same on every run.
+     */
+    private static final long SEED = 0xac41L;
+
+    /**
+     * Number of textures kept; apps use one or two noise configurations.
+     */
+    private static final int MAX_CACHED = 4;
+
+    /**
+     * Repeating shaders of the generated textures. Least recently used ones
+     * are evicted beyond {@link #MAX_CACHED}.
+     */
+    private static final Map<String, BitmapShader> sCache =
+            new LinkedHashMap<String, BitmapShader>(MAX_CACHED + 1, 1f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, BitmapShader> eldest) {
+                    return size() > MAX_CACHED;
+                }
+            };
+
+    private NoiseTexture() {
+    }
+
+    /**
+     * Returns the repeating shader of the noise texture for the given
+     * configuration, generating the texture if it has not been generated yet
+     * in this process.
+     *
+     * @param res        resources used to get the screen density
+     * @param intensity  how far the pixels deviate from mid gray, in [0, 1]
+     * @param monochrome whether the noise is gray or colored
+     * @return the noise shader
+     * @throws IllegalArgumentException if {@code intensity} is not in [0, 1]
+     */
+    @NonNull
+    static synchronized BitmapShader shader(@NonNull Resources res, float intensity, boolean monochrome) {
+        final int size = Math.max(1, Math.round(SIZE_DP * res.getDisplayMetrics().density));
+        final String key = cacheKey(intensity, monochrome) + "|" + size;
+
+        BitmapShader shader = sCache.get(key);
+        if (shader == null) {
+            shader = repeating(generate(intensity, monochrome, size));
+            sCache.put(key, shader);
+        }
+
+        return shader;
+    }
+
+    /**
+     * Creates a shader that tiles {@code texture}.
+     *
+     * @param texture a noise texture
+     * @return the noise shader
+     */
+    @NonNull
+    static BitmapShader repeating(@NonNull Bitmap texture) {
+        return new BitmapShader(texture, Shader.TileMode.REPEAT, Shader.TileMode.REPEAT);
+    }
+
+    /**
+     * Returns a key identifying the texture for the given configuration,
+     * independent of the screen density.
+     *
+     * @throws IllegalArgumentException if {@code intensity} is not in [0, 1]
+     */
+    @NonNull
+    static String cacheKey(float intensity, boolean monochrome) {
+        if (!(intensity >= 0f) || !(intensity <= 1f)) {
+            throw new IllegalArgumentException("intensity must be between 0 and 1");
+        }
+
+        // + 0f turns -0f into 0f so both share a key
+        return String.format(Locale.US, "%s:%s", monochrome ? "mono" : "color", intensity + 0f);
+    }
+
+    private static Bitmap generate(float intensity, boolean monochrome, int size) {
+        final Random random = new Random(SEED);
+        final float amplitude = 127f * intensity;
+        final int[] pix = new int[SIZE_DP * SIZE_DP];
+
+        for (int i = 0; i < pix.length; i++) {
+            int r = channel(random, amplitude);
+            if (monochrome) {
+                pix[i] = Color.argb(ALPHA, r, r, r);
+            } else {
+                pix[i] = Color.argb(ALPHA, r, channel(random, amplitude), channel(random, amplitude));
+            }
+        }
+
+        final Bitmap texture = Bitmap.createBitmap(pix, SIZE_DP, SIZE_DP, Bitmap.Config.ARGB_8888);
+        if (size == SIZE_DP) {
+            return texture;
+        }
+
+        // Nearest neighbour keeps the grains sharp at every density
+        return Bitmap.createScaledBitmap(texture, size, size, false);
+    }
+
+    private static int channel(Random random, float amplitude) {
+        return 128 + Math.round((random.nextFloat() * 2f - 1f) * amplitude);
+    }
+}
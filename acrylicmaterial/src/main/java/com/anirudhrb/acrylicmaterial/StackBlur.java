@@ -11,6 +11,18 @@ import android.support.annotation.Nullable;
  * Source of Android port: https://stackoverflow.com/a/10028267.
  */
 public class StackBlur implements IBlurAlgorithm {
+    /**
+     * The weighted channel sums are divided by {@code divsum} by multiplying
+     * with a fixed-point reciprocal and shifting right by this many bits.
+     */
+    static final int DIV_SHIFT = 48;
+
+    /**
+     * Largest radius for which the reciprocal division is exact: a sum is at
+     * most {@code 255 * divsum}, and the result is exact while
+     * {@code 255 * divsum^2 < 2^DIV_SHIFT}.
+     */
+    static final int MAX_RADIUS = 1000;
 
     @Override
     @Nullable
@@ -18,6 +30,12 @@ public class StackBlur implements IBlurAlgorithm {
         return stackBlur(input, Math.round(radius));
     }
 
+    @Override
+    @NonNull
+    public String cacheKey() {
+        return "stack";
+    }
+
     /**
      * Stack Blur v1.0 from
      * http://www.quasimondo.com/StackBlurForCanvas/StackBlurDemo.html
@@ -50,7 +68,7 @@ public class StackBlur implements IBlurAlgorithm {
     private Bitmap stackBlur(Bitmap sentBitmap, int radius) {
         Bitmap bitmap = sentBitmap.copy(sentBitmap.getConfig(), true);
 
-        if (radius < 1) {
+        if (radius < 1 || radius > MAX_RADIUS) {
             return (null);
         }
 
@@ -71,12 +89,7 @@ public class StackBlur implements IBlurAlgorithm {
         int rsum, gsum, bsum, x, y, i, p, yp, yi, yw;
         int vmin[] = new int[Math.max(w, h)];
 
-        int divsum = (div + 1) >> 1;
-        divsum *= divsum;
-        int dv[] = new int[256 * divsum];
-        for (i = 0; i < 256 * divsum; i++) {
-            dv[i] = (i / divsum);
-        }
+        long dv = reciprocal(div);
 
         yw = yi = 0;
 
@@ -115,9 +128,9 @@ public class StackBlur implements IBlurAlgorithm {
 
             for (x = 0; x < w; x++) {
 
-                r[yi] = dv[rsum];
-                g[yi] = dv[gsum];
-                b[yi] = dv[bsum];
+                r[yi] = (int) ((rsum * dv) >>> DIV_SHIFT);
+                g[yi] = (int) ((gsum * dv) >>> DIV_SHIFT);
+                b[yi] = (int) ((bsum * dv) >>> DIV_SHIFT);
 
                 rsum -= routsum;
                 gsum -= goutsum;
@@ -198,7 +211,10 @@ public class StackBlur implements IBlurAlgorithm {
             stackpointer = radius;
             for (y = 0; y < h; y++) {
                 // Preserve alpha channel: ( 0xff000000 & pix[yi] )
-                pix[yi] = ( 0xff000000 & pix[yi] ) | ( dv[rsum] << 16 ) | ( dv[gsum] << 8 ) | dv[bsum];
+                pix[yi] = ( 0xff000000 & pix[yi] )
+                        | ( (int) ((rsum * dv) >>> DIV_SHIFT) << 16 )
+                        | ( (int) ((gsum * dv) >>> DIV_SHIFT) << 8 )
+                        | (int) ((bsum * dv) >>> DIV_SHIFT);
 
                 rsum -= routsum;
                 gsum -= goutsum;
@@ -247,4 +263,15 @@ public class StackBlur implements IBlurAlgorithm {
 
         return (bitmap);
     }
+
+    /**
+     * Returns the fixed-point reciprocal of the sum of the stack weights for
+     * the given stack size, rounded up so that
+     * {@code (sum * reciprocal) >>> DIV_SHIFT == sum / divsum}.
+     */
+    static long reciprocal(int div) {
+        long divsum = (div + 1) >> 1;
+        divsum *= divsum;
+        return ((1L << DIV_SHIFT) + divsum - 1) / divsum;
+    }
 }
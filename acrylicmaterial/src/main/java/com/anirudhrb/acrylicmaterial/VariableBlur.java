@@ -0,0 +1,291 @@
+package com.anirudhrb.acrylicmaterial;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Variable radius blur. The blur radius can differ for every pixel, e.g. to
+ * make the blur stronger towards the edge of a panel.
+ * <p>
+ * Each pass builds a summed-area table of the image, after which the box
+ * average around any pixel takes four lookups regardless of its radius. The
+ * cost is therefore O(width * height) per pass independent of the radii used.
+ * A few box passes approximate a Gaussian blur.
+ * <p>
+ * The radius passed to {@link #applyOn(Bitmap, float)} is the maximum radius;
+ * the {@link RadiusFunction} scales it per pixel.
+ */
+public class VariableBlur implements IBlurAlgorithm {
+    /**
+     * Three box blurs are visually close to a Gaussian blur.
+     */
+    private static final int DEFAULT_PASSES = 3;
+
+    /**
+     * Largest box radius. The summed-area tables wrap around in {@code int}, so
+     * a box sum is only exact while it is below 2^32: {@code 255 * 4103^2} is,
+     * one more px of radius is not. A box this large is a full blur anyway.
+     */
+    static final int MAX_BOX_RADIUS = 2051;
+
+    /**
+     * Gives the fraction of the maximum blur radius to use at each pixel.
+     */
+    public interface RadiusFunction {
+        /**
+         * @param x horizontal position, normalised to [0, 1]
+         * @param y vertical position, normalised to [0, 1]
+         * @return the fraction of the maximum radius to use at ({@code x}, {@code y}),
+         * in [0, 1]
+         */
+        float factorAt(float x, float y);
+    }
+
+    /**
+     * A radius function identified by its parameters, so that blurs using it
+     * can be cached (see {@link #cacheKey()}).
+     */
+    private abstract static class KeyedRadiusFunction implements RadiusFunction {
+        @NonNull
+        final String mKey;
+
+        KeyedRadiusFunction(@NonNull String key) {
+            mKey = key;
+        }
+    }
+
+    @NonNull
+    private final RadiusFunction mRadiusFunction;
+    private final int mPasses;
+
+    /**
+     * @param radiusFunction gives the per-pixel fraction of the maximum radius
+     */
+    public VariableBlur(@NonNull RadiusFunction radiusFunction) {
+        this(radiusFunction, DEFAULT_PASSES);
+    }
+
+    /**
+     * @param radiusFunction gives the per-pixel fraction of the maximum radius
+     * @param passes         number of box blur passes; more passes are smoother
+     *                       but each pass costs a full scan of the image
+     */
+    public VariableBlur(@NonNull RadiusFunction radiusFunction, int passes) {
+        Objects.requireNonNull(radiusFunction);
+        if (passes < 1) {
+            throw new IllegalArgumentException("passes must be at least 1");
+        }
+
+        mRadiusFunction = radiusFunction;
+        mPasses = passes;
+    }
+
+    /**
+     * Creates a linear gradient radius function going from no blur at
+     * ({@code startX}, {@code startY}) to the maximum radius at
+     * ({@code endX}, {@code endY}). Coordinates are normalised to [0, 1].
+     * <p>
+     * Blurs using the returned function can be cached.
+     *
+     * @return the radius function
+     */
+    @NonNull
+    public static RadiusFunction linearGradient(final float startX, final float startY,
+                                                final float endX, final float endY) {
+        final float dx = endX - startX;
+        final float dy = endY - startY;
+        final float lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared == 0f) {
+            throw new IllegalArgumentException("Gradient start and end must differ");
+        }
+
+        final String key = String.format(Locale.US, "linear(%s,%s,%s,%s)",
+                startX, startY, endX, endY);
+        return new KeyedRadiusFunction(key) {
+            @Override
+            public float factorAt(float x, float y) {
+                float t = ((x - startX) * dx + (y - startY) * dy) / lengthSquared;
+                return Math.max(0f, Math.min(1f, t));
+            }
+        };
+    }
+
+    /**
+     * Creates a radius function from a map of factors. The map is sampled
+     * (nearest neighbour) at the normalised pixel position, so it need not
+     * have the same size as the image.
+     * <p>
+     * The map is copied. Blurs using the returned function can be cached.
+     *
+     * @param factors row-major factors in [0, 1], {@code width * height} of them
+     * @param width   width of the map
+     * @param height  height of the map
+     * @return the radius function
+     */
+    @NonNull
+    public static RadiusFunction radiusMap(@NonNull float[] factors,
+                                           final int width, final int height) {
+        Objects.requireNonNull(factors);
+        if (width < 1 || height < 1 || factors.length < width * height) {
+            throw new IllegalArgumentException("factors must hold width * height values");
+        }
+
+        final float[] map = Arrays.copyOf(factors, width * height);
+        final String key = String.format(Locale.US, "map(%dx%d,%s)", width, height, digest(map));
+        return new KeyedRadiusFunction(key) {
+            @Override
+            public float factorAt(float x, float y) {
+                int mx = Math.min(width - 1, (int) (x * width));
+                int my = Math.min(height - 1, (int) (y * height));
+                return map[my * width + mx];
+            }
+        };
+    }
+
+    @Override
+    @Nullable
+    public Bitmap applyOn(@NonNull Bitmap input, float radius) {
+        if (!(radius > 0f)) {
+            return null;
+        }
+
+        final int w = input.getWidth();
+        final int h = input.getHeight();
+
+        final int[] pix = new int[w * h];
+        input.getPixels(pix, 0, w, 0, 0, w, h);
+
+        // Per-pass radius: variances of successive box blurs add up, so
+        // scaling by 1/sqrt(passes) keeps the overall blur close to `radius`.
+        final float passRadius = radius / (float) Math.sqrt(mPasses);
+        final int[] radii = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            float ny = (y + 0.5f) / h;
+            for (int x = 0; x < w; x++) {
+                float factor = mRadiusFunction.factorAt((x + 0.5f) / w, ny);
+                radii[y * w + x] = Math.round(passRadius * Math.max(0f, Math.min(1f, factor)));
+            }
+        }
+
+        boxBlur(pix, w, h, radii, mPasses);
+
+        Bitmap bitmap = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        bitmap.setPixels(pix, 0, w, 0, 0, w, h);
+        return bitmap;
+    }
+
+    /**
+     * Blurs {@code pix} in place with {@code passes} box blurs, each using the
+     * per-pixel radius in {@code radii}. Boxes are clipped at the image edges
+     * and averaged over the pixels they cover. Radii are capped at
+     * {@link #MAX_BOX_RADIUS}. Alpha is preserved.
+     *
+     * @param pix    ARGB pixels, row-major
+     * @param w      image width
+     * @param h      image height
+     * @param radii  box radius of each pixel; 0 leaves the pixel unchanged
+     * @param passes number of box blur passes
+     */
+    static void boxBlur(int[] pix, int w, int h, int[] radii, int passes) {
+        // Summed-area tables with a zero row and column in front. The sums are
+        // allowed to overflow: differences are exact modulo 2^32, and read as
+        // unsigned they are the true box sum, which MAX_BOX_RADIUS keeps
+        // below 2^32.
+        final int stride = w + 1;
+        final int[] sr = new int[stride * (h + 1)];
+        final int[] sg = new int[stride * (h + 1)];
+        final int[] sb = new int[stride * (h + 1)];
+
+        for (int pass = 0; pass < passes; pass++) {
+            for (int y = 0; y < h; y++) {
+                int rowR = 0, rowG = 0, rowB = 0;
+                int above = y * stride + 1;
+                int row = above + stride;
+                int p = y * w;
+                for (int x = 0; x < w; x++) {
+                    int c = pix[p + x];
+                    rowR += (c >> 16) & 0xff;
+                    rowG += (c >> 8) & 0xff;
+                    rowB += c & 0xff;
+                    sr[row + x] = sr[above + x] + rowR;
+                    sg[row + x] = sg[above + x] + rowG;
+                    sb[row + x] = sb[above + x] + rowB;
+                }
+            }
+
+            for (int y = 0; y < h; y++) {
+                int p = y * w;
+                for (int x = 0; x < w; x++, p++) {
+                    int rad = Math.min(radii[p], MAX_BOX_RADIUS);
+                    if (rad == 0) {
+                        continue;
+                    }
+
+                    int x0 = Math.max(0, x - rad);
+                    int x1 = Math.min(w, x + rad + 1);
+                    int y0 = Math.max(0, y - rad) * stride;
+                    int y1 = Math.min(h, y + rad + 1) * stride;
+                    int area = (x1 - x0) * ((y1 - y0) / stride);
+
+                    int a = y0 + x0, b = y0 + x1, c = y1 + x0, d = y1 + x1;
+                    int r = (int) (((sr[d] - sr[b] - sr[c] + sr[a]) & 0xffffffffL) / area);
+                    int g = (int) (((sg[d] - sg[b] - sg[c] + sg[a]) & 0xffffffffL) / area);
+                    int bl = (int) (((sb[d] - sb[b] - sb[c] + sb[a]) & 0xffffffffL) / area);
+
+                    // Preserve alpha channel
+                    pix[p] = (0xff000000 & pix[p]) | (r << 16) | (g << 8) | bl;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a key if the radius function was created by
+     * {@link #linearGradient(float, float, float, float)} or
+     * {@link #radiusMap(float[], int, int)}. Other radius functions are
+     * arbitrary code, so their results cannot be keyed.
+     */
+    @Override
+    @Nullable
+    public String cacheKey() {
+        if (!(mRadiusFunction instanceof KeyedRadiusFunction)) {
+            return null;
+        }
+
+        return "variable:" + mPasses + ":" + ((KeyedRadiusFunction) mRadiusFunction).mKey;
+    }
+
+    /**
+     * Returns the hex SHA-256 digest of {@code values}. A digest rather than
+     * {@code Arrays.hashCode()} so that different maps do not share a key.
+     */
+    @NonNull
+    private static String digest(@NonNull float[] values) {
+        final ByteBuffer bytes = ByteBuffer.allocate(values.length * 4);
+        for (float value : values) {
+            bytes.putFloat(value);
+        }
+
+        final byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(bytes.array());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        final StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(String.format(Locale.US, "%02x", b));
+        }
+
+        return hex.toString();
+    }
+}
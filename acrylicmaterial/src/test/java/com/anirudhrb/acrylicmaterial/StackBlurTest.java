@@ -0,0 +1,47 @@
+package com.anirudhrb.acrylicmaterial;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the fixed-point division of {@link StackBlur} is exact for
+ * every weighted channel sum a stack can produce.
+ */
+public class StackBlurTest {
+
+    @Test
+    public void reciprocal_isExactForSmallestRadius() {
+        assertExactDivision(1);
+    }
+
+    @Test
+    public void reciprocal_isExactForTypicalRadius() {
+        assertExactDivision(80);
+    }
+
+    @Test
+    public void reciprocal_isExactForMaxRadius() {
+        assertExactDivision(StackBlur.MAX_RADIUS);
+    }
+
+    /**
+     * Checks every sum {@code n <= 255 * divsum}. The expected quotient is
+     * counted up rather than computed with a division, to keep the check fast.
+     */
+    private static void assertExactDivision(int radius) {
+        final int div = radius + radius + 1;
+        final long divsum = (long) (radius + 1) * (radius + 1);
+        final long dv = StackBlur.reciprocal(div);
+
+        for (long q = 0; q <= 255; q++) {
+            final long end = q == 255 ? 255 * divsum + 1 : (q + 1) * divsum;
+            for (long n = q * divsum; n < end; n++) {
+                if ((n * dv) >>> StackBlur.DIV_SHIFT != q) {
+                    fail("radius " + radius + ": " + n + " / " + divsum + " != "
+                            + ((n * dv) >>> StackBlur.DIV_SHIFT));
+                }
+            }
+        }
+    }
+}
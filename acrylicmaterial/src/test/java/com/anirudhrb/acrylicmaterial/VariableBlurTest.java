@@ -0,0 +1,193 @@
+package com.anirudhrb.acrylicmaterial;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the summed-area-table box blur of {@link VariableBlur} against a
+ * brute-force box blur.
+ */
+public class VariableBlurTest {
+    private static final int W = 13;
+    private static final int H = 7;
+
+    @Test
+    public void singlePass_matchesBruteForce() {
+        Random random = new Random(1);
+        int[] pix = randomPixels(random, W * H);
+        int[] radii = new int[W * H];
+        for (int i = 0; i < radii.length; i++) {
+            radii[i] = random.nextInt(6);
+        }
+        radii[0] = 20;               // corner, box larger than the image
+        radii[W * H - 1] = 3;        // opposite corner, box clipped on two sides
+        radii[3 * W + 6] = 0;        // centre, left unchanged
+
+        int[] expected = bruteForce(pix, W, H, radii, 1);
+        VariableBlur.boxBlur(pix, W, H, radii, 1);
+
+        assertArrayEquals(expected, pix);
+    }
+
+    @Test
+    public void multiplePasses_matchBruteForce() {
+        Random random = new Random(2);
+        int[] pix = randomPixels(random, W * H);
+        int[] radii = new int[W * H];
+        for (int i = 0; i < radii.length; i++) {
+            radii[i] = random.nextInt(4);
+        }
+
+        int[] expected = bruteForce(pix, W, H, radii, 3);
+        VariableBlur.boxBlur(pix, W, H, radii, 3);
+
+        assertArrayEquals(expected, pix);
+    }
+
+    @Test
+    public void radiusZero_leavesPixelUnchanged() {
+        int[] pix = randomPixels(new Random(3), W * H);
+        int[] original = pix.clone();
+        int[] radii = new int[W * H];
+        Arrays.fill(radii, 2);
+        radii[2 * W + 4] = 0;
+
+        VariableBlur.boxBlur(pix, W, H, radii, 1);
+
+        assertEquals(original[2 * W + 4], pix[2 * W + 4]);
+    }
+
+    @Test
+    public void radiusLargerThanImage_averagesWholeImage() {
+        int[] pix = randomPixels(new Random(4), W * H);
+        int[] radii = new int[W * H];
+        Arrays.fill(radii, Math.max(W, H) * 2);
+
+        long r = 0, g = 0, b = 0;
+        for (int c : pix) {
+            r += (c >> 16) & 0xff;
+            g += (c >> 8) & 0xff;
+            b += c & 0xff;
+        }
+        int n = W * H;
+        int average = (int) ((r / n) << 16 | (g / n) << 8 | (b / n));
+
+        int[] alphas = new int[n];
+        for (int i = 0; i < n; i++) {
+            alphas[i] = pix[i] & 0xff000000;
+        }
+
+        VariableBlur.boxBlur(pix, W, H, radii, 1);
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(alphas[i] | average, pix[i]);
+        }
+    }
+
+    @Test
+    public void overflowingTableSums_areExact() {
+        // 255 * 3000 * 3000 > 2^31, so the table sums wrap around
+        final int w = 3000;
+        final int h = 3000;
+        int[] pix = new int[w * h];
+        for (int i = 0; i < pix.length; i++) {
+            pix[i] = 0xff000000 | (255 - i % 7) << 16 | (255 - i % 11) << 8 | (255 - i % 13);
+        }
+        int[] radii = new int[w * h];
+        Arrays.fill(radii, 2);
+
+        int[] samples = {0, w - 1, (h / 2) * w + w / 2, (h - 1) * w, w * h - 1, w * h - w / 3};
+        int[] expected = new int[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            expected[i] = boxAverage(pix, w, h, samples[i] % w, samples[i] / w, 2);
+        }
+
+        VariableBlur.boxBlur(pix, w, h, radii, 1);
+
+        for (int i = 0; i < samples.length; i++) {
+            assertEquals(expected[i], pix[samples[i]]);
+        }
+    }
+
+    @Test
+    public void boxSumsAbove2To31_areExact() {
+        // The centre box covers all 9M px, so a white image sums to
+        // 255 * 9M > 2^31 per channel
+        final int w = 3000;
+        final int h = 3000;
+        int[] pix = new int[w * h];
+        Arrays.fill(pix, 0xffffffff);
+        int[] radii = new int[w * h];
+        Arrays.fill(radii, 3000);
+
+        VariableBlur.boxBlur(pix, w, h, radii, 1);
+
+        for (int c : pix) {
+            assertEquals(0xffffffff, c);
+        }
+    }
+
+    @Test
+    public void radiusAboveMax_isCapped() {
+        final int w = 4200;
+        final int h = 4200;
+        final int rad = VariableBlur.MAX_BOX_RADIUS;
+        int[] pix = new int[w * h];
+        for (int i = 0; i < pix.length; i++) {
+            pix[i] = 0xff000000 | (255 - i % 5) << 16 | (255 - i % 3) << 8 | 255;
+        }
+        int[] radii = new int[w * h];
+        Arrays.fill(radii, rad + 1000);
+
+        // The capped centre box is the largest allowed: (2 * rad + 1)^2 px
+        int centre = (h / 2) * w + w / 2;
+        int expected = boxAverage(pix, w, h, w / 2, h / 2, rad);
+
+        VariableBlur.boxBlur(pix, w, h, radii, 1);
+
+        assertEquals(expected, pix[centre]);
+    }
+
+    private static int[] randomPixels(Random random, int n) {
+        int[] pix = new int[n];
+        for (int i = 0; i < n; i++) {
+            pix[i] = random.nextInt();
+        }
+        return pix;
+    }
+
+    private static int[] bruteForce(int[] input, int w, int h, int[] radii, int passes) {
+        int[] pix = input.clone();
+        for (int pass = 0; pass < passes; pass++) {
+            int[] next = new int[pix.length];
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    int rad = radii[y * w + x];
+                    next[y * w + x] = rad == 0 ? pix[y * w + x] : boxAverage(pix, w, h, x, y, rad);
+                }
+            }
+            pix = next;
+        }
+        return pix;
+    }
+
+    private static int boxAverage(int[] pix, int w, int h, int x, int y, int rad) {
+        long r = 0, g = 0, b = 0;
+        int n = 0;
+        for (int j = Math.max(0, y - rad); j <= Math.min(h - 1, y + rad); j++) {
+            for (int i = Math.max(0, x - rad); i <= Math.min(w - 1, x + rad); i++) {
+                int c = pix[j * w + i];
+                r += (c >> 16) & 0xff;
+                g += (c >> 8) & 0xff;
+                b += c & 0xff;
+                n++;
+            }
+        }
+        return (pix[y * w + x] & 0xff000000)
+                | (int) (r / n) << 16 | (int) (g / n) << 8 | (int) (b / n);
+    }
+}